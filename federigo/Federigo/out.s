@@ -1,5 +1,21 @@
 .global _start
+.align 2
 _start:
-    mov x0, #23
+    sub sp, sp, #32
+    mov x9, #342
+    str x9, [sp, #0]
+    mov x10, #10
+    cmp x9, x10
+    cset x9, gt
+    cbz x9, Lelse1
+    mov x9, #13
+    str x9, [sp, #8]
+    b Lend2
+Lelse1:
+    mov x9, #23
+    str x9, [sp, #16]
+Lend2:
+    ldr x9, [sp, #0]
+    mov x0, x9
     mov x16, #1
-    svc #0
\ No newline at end of file
+    svc #0
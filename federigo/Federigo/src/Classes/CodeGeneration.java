@@ -1,21 +1,580 @@
-//package Classes;
+package Classes;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static Classes.Instruction.Opcode;
+
+// Lowers the parse tree into Instruction IR and prints it as arm64 assembly.
+// Every variable lives in its own stack slot, expressions are evaluated into
+// scratch registers by depth. The program exits with the value of the last
+// top level declaration (or 0 if there is none).
 //
-//import lombok.AllArgsConstructor;
+// Strings are values pointing into the StringPool. Nothing can change a
+// string after its declaration, so every string expression is folded here
+// and a whole "a" + b + "c" chain ends up as a single pool entry.
 //
-//import java.util.ArrayList;
-//import java.util.Optional;
+// Expressions without identifiers are folded to constants. The result is
+// cached per node, so when the parser hash conses (see NodeInterner) every
+// distinct subtree is analysed only once however often it is repeated.
+// Whether an expression is a String depends on the scope, so that is worked
+// out once per node for each statement and cached until the next one.
 //
-//@AllArgsConstructor
-//public class CodeGeneration {
-//
-//    Optional<NodeExit> root;
-//
-//    public String generate() {
-//        StringBuilder stringStream = new StringBuilder(".global _start\n");
-//        stringStream.append("_start:\n");
-//        stringStream.append(String.format("    mov x0, #%s\n",  root.get().exitNode.intLit.value.get()));
-//        stringStream.append("    mov x16, #1\n");
-//        stringStream.append("    svc #0");
-//        return stringStream.toString();
-//    }
-//}
+// With instrumentation on, every if arm bumps a counter and the counters are
+// written to a Profile file right before exit. With a Profile the hotter arm
+// of an if becomes the fall through path and an arm that is rarely taken is
+// moved out of line, after the exit.
+public class CodeGeneration {
+    public static final int MAX_REGISTERS = 7;
+    // an arm taken less than 1/COLD_RATIO as often as the other one is cold
+    public static final int COLD_RATIO = 10;
+
+    private final Node root;
+    private final LineIndex lineIndex;
+    // where instructions currently go, swapped while an out of line arm is generated
+    private List<Instruction> code = new ArrayList<>();
+    // out of line arms, appended after the exit
+    private final List<List<Instruction>> outOfLine = new ArrayList<>();
+    private SymbolTable symbolTable = new SymbolTable();
+    private final StringPool pool = new StringPool();
+    // folded value of every String variable
+    private final Map<SymbolTable.Symbol, String> strings = new HashMap<>();
+    // folded value of every subtree seen so far, empty if it isn't constant
+    private final Map<Node, Optional<Constant>> constants = new IdentityHashMap<>();
+    // String or not for every expression node of the current statement
+    private final Map<Node, Boolean> types = new IdentityHashMap<>();
+    private int slots = 0;
+    private int labels = 0;
+    // offset of the statement being generated, for nodes shared by hash consing
+    private int statementOffset = 0;
+    private final Map<Node, Long> ifKeys = new IdentityHashMap<>();
+    private final List<Long> counterKeys = new ArrayList<>();
+    private String instrumentPath = null;
+    private Profile profile = null;
+
+    private record Constant(boolean isString, long number, String string) {}
+
+    public CodeGeneration(Node root, LineIndex lineIndex) {
+        this.root = root;
+        this.lineIndex = lineIndex;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public StringPool getPool() {
+        return pool;
+    }
+
+    public List<Long> getCounterKeys() {
+        return counterKeys;
+    }
+
+    public boolean isInstrumented() {
+        return instrumentPath != null;
+    }
+
+    // the generated program writes its profile to path when it exits
+    public void setInstrumentation(String path) {
+        this.instrumentPath = path;
+    }
+
+    public void setProfile(Profile profile) {
+        this.profile = profile;
+    }
+
+    public List<Instruction> generate() {
+        assignIfKeys(root, new HashMap<>());
+        int lastSlot = -1;
+        List<Node> statements = root instanceof BlockNode block ? block.statements : List.of(root);
+        for (Node statement : statements) {
+            generateStatement(statement);
+            if (statement instanceof AssignmentNode) {
+                lastSlot = slots - 1;
+            }
+        }
+        if (instrumentPath != null) {
+            code.add(Instruction.dump(pool.intern(instrumentPath + "\0")));
+        }
+        if (lastSlot >= 0) {
+            code.add(Instruction.load(0, lastSlot));
+        } else {
+            code.add(Instruction.movi(0, 0));
+        }
+        code.add(Instruction.exit(0));
+        for (List<Instruction> arm : outOfLine) {
+            code.addAll(arm);
+        }
+        return code;
+    }
+
+    // Keys are handed out in source order up front so they don't depend on
+    // the block layout a profile picks.
+    private void assignIfKeys(Node node, Map<String, Integer> occurrences) {
+        if (node instanceof BlockNode block) {
+            for (Node statement : block.statements) {
+                assignIfKeys(statement, occurrences);
+            }
+        } else if (node instanceof IfStatementNode ifStatement) {
+            int occurrence = occurrences.merge(Profile.describe(ifStatement.condition), 1, Integer::sum) - 1;
+            ifKeys.put(ifStatement, Profile.ifKey(ifStatement.condition, occurrence));
+            assignIfKeys(ifStatement.ifBlock, occurrences);
+            if (ifStatement.elseBlock != null) {
+                assignIfKeys(ifStatement.elseBlock, occurrences);
+            }
+        }
+    }
+
+    private void generateStatement(Node node) {
+        if (node instanceof BlockNode block) {
+            symbolTable = new SymbolTable(symbolTable);
+            for (Node statement : block.statements) {
+                generateStatement(statement);
+            }
+            symbolTable = symbolTable.getParent();
+        } else if (node instanceof AssignmentNode assignment) {
+            statementOffset = assignment.getOffset();
+            types.clear();
+            if (assignment.type.value.equals("Float")) {
+                throw new RuntimeException("Code generation error: Float is not supported yet at "
+                        + lineIndex.describe(assignment.getOffset()));
+            }
+            boolean isString = isStringExpression(assignment.expression);
+            if (isString != assignment.type.value.equals("String")) {
+                throw new RuntimeException("Type error: cannot assign " + (isString ? "String" : "a number") + " to "
+                        + assignment.type.value + " at " + lineIndex.describe(assignment.getOffset()));
+            }
+            String folded = null;
+            if (isString) {
+                folded = foldString(assignment.expression);
+                code.add(Instruction.addr(0, pool.intern(folded)));
+            } else {
+                generateExpression(assignment.expression, 0);
+            }
+            int slot = slots++;
+            symbolTable.add(assignment.identifier.value, assignment.type.value, slot, assignment.varType);
+            if (isString) {
+                strings.put(symbolTable.lookup(assignment.identifier.value), folded);
+            }
+            code.add(Instruction.store(0, slot));
+        } else if (node instanceof IfStatementNode ifStatement) {
+            statementOffset = ifStatement.getOffset();
+            types.clear();
+            generateIf(ifStatement);
+        } else {
+            throw new RuntimeException("Code generation error: unsupported statement " + node.getClass().getSimpleName());
+        }
+    }
+
+    private void generateIf(IfStatementNode ifStatement) {
+        long key = ifKeys.get(ifStatement);
+        String thenLabel = newLabel("then");
+        String elseLabel = newLabel("else");
+        String endLabel = newLabel("end");
+        int thenCounter = -1;
+        int elseCounter = -1;
+        if (instrumentPath != null) {
+            thenCounter = addCounter(Profile.thenKey(key));
+            elseCounter = addCounter(Profile.elseKey(key));
+        }
+
+        boolean elseFirst = false;
+        boolean coldOutOfLine = false;
+        if (profile != null && (profile.contains(Profile.thenKey(key)) || profile.contains(Profile.elseKey(key)))) {
+            long thenCount = profile.count(Profile.thenKey(key));
+            long elseCount = profile.count(Profile.elseKey(key));
+            elseFirst = elseCount > thenCount;
+            coldOutOfLine = Math.min(thenCount, elseCount) * COLD_RATIO < Math.max(thenCount, elseCount);
+        }
+
+        generateExpression(ifStatement.condition, 0);
+        if (elseFirst) {
+            code.add(Instruction.cbnz(0, thenLabel));
+            generateArm(ifStatement.elseBlock, elseCounter);
+        } else {
+            code.add(Instruction.cbz(0, elseLabel));
+            generateArm(ifStatement.ifBlock, thenCounter);
+        }
+        String secondLabel = elseFirst ? thenLabel : elseLabel;
+        Node secondBlock = elseFirst ? ifStatement.ifBlock : ifStatement.elseBlock;
+        int secondCounter = elseFirst ? thenCounter : elseCounter;
+        if (coldOutOfLine) {
+            // generated here so it sees exactly the declarations in scope at the if
+            List<Instruction> inLine = code;
+            code = new ArrayList<>();
+            code.add(Instruction.label(secondLabel));
+            generateArm(secondBlock, secondCounter);
+            code.add(Instruction.branch(endLabel));
+            outOfLine.add(code);
+            code = inLine;
+        } else {
+            code.add(Instruction.branch(endLabel));
+            code.add(Instruction.label(secondLabel));
+            generateArm(secondBlock, secondCounter);
+        }
+        code.add(Instruction.label(endLabel));
+    }
+
+    private void generateArm(Node block, int counter) {
+        if (counter >= 0) {
+            code.add(Instruction.count(counter));
+        }
+        if (block != null) {
+            generateStatement(block);
+        }
+    }
+
+    private int addCounter(long key) {
+        counterKeys.add(key);
+        return counterKeys.size() - 1;
+    }
+
+    private void generateExpression(Node node, int register) {
+        if (register >= MAX_REGISTERS) {
+            throw new RuntimeException("Code generation error: expression too deep at " + position(node));
+        }
+        Optional<Constant> folded = constant(node);
+        if (folded.isPresent()) {
+            Constant value = folded.get();
+            code.add(value.isString() ? Instruction.addr(register, pool.intern(value.string()))
+                    : Instruction.movi(register, value.number()));
+        } else if (isStringExpression(node)) {
+            code.add(Instruction.addr(register, pool.intern(foldString(node))));
+        } else if (node instanceof IdentifierNode identifier) {
+            SymbolTable.Symbol symbol = symbolTable.lookup(identifier.token.value);
+            if (symbol == null) {
+                throw new RuntimeException("Code generation error: undeclared variable " + identifier.token.value
+                        + " at " + position(identifier));
+            }
+            code.add(Instruction.load(register, (int) symbol.getValue()));
+        } else if (node instanceof binaryOperatorNode binary && binary.operator.type == TokenType.AND) {
+            generateAnd(binary, register);
+        } else if (node instanceof binaryOperatorNode binary) {
+            generateExpression(binary.left, register);
+            generateExpression(binary.right, register + 1);
+            TokenType operator = binary.operator.type;
+            switch (operator) {
+                case PLUS -> code.add(Instruction.binary(Opcode.ADD, register, register, register + 1));
+                case DASH -> code.add(Instruction.binary(Opcode.SUB, register, register, register + 1));
+                case MULTIPLY -> code.add(Instruction.binary(Opcode.MUL, register, register, register + 1));
+                case SLASH -> code.add(Instruction.binary(Opcode.DIV, register, register, register + 1));
+                // any non zero operand is true, so bitwise or is enough
+                case OR -> code.add(Instruction.binary(Opcode.OR, register, register, register + 1));
+                case EQUALS, NOT_EQUALS, LESS, LESS_EQUALS, GREATER, GREATER_EQUALS ->
+                        code.add(Instruction.set(operator, register, register, register + 1));
+                default -> throw new RuntimeException("Code generation error: unsupported operator " + binary.operator.value);
+            }
+        } else {
+            throw new RuntimeException("Code generation error: unsupported expression " + node.getClass().getSimpleName());
+        }
+    }
+
+    // The left operand of && is not necessarily a 0/1 comparison result
+    // (x && y > 1), so each side is tested against zero, short circuiting.
+    private void generateAnd(binaryOperatorNode binary, int register) {
+        String falseLabel = newLabel("false");
+        String endLabel = newLabel("and");
+        generateExpression(binary.left, register);
+        code.add(Instruction.cbz(register, falseLabel));
+        generateExpression(binary.right, register);
+        code.add(Instruction.cbz(register, falseLabel));
+        code.add(Instruction.movi(register, 1));
+        code.add(Instruction.branch(endLabel));
+        code.add(Instruction.label(falseLabel));
+        code.add(Instruction.movi(register, 0));
+        code.add(Instruction.label(endLabel));
+    }
+
+    private Optional<Constant> constant(Node node) {
+        Optional<Constant> known = constants.get(node);
+        if (known == null) {
+            known = foldConstant(node);
+            constants.put(node, known);
+        }
+        return known;
+    }
+
+    private Optional<Constant> foldConstant(Node node) {
+        if (node instanceof numberNode number) {
+            // no fp registers in the backend yet, truncating would silently change the value
+            if (number.token.value.contains(".")) {
+                throw new RuntimeException("Code generation error: Float literal " + number.token.value
+                        + " is not supported yet at " + position(number));
+            }
+            return Optional.of(new Constant(false, Long.parseLong(number.token.value), null));
+        }
+        if (node instanceof StringNode string) {
+            return Optional.of(new Constant(true, 0, string.text()));
+        }
+        if (!(node instanceof binaryOperatorNode binary)) {
+            return Optional.empty();
+        }
+        Optional<Constant> left = constant(binary.left);
+        Optional<Constant> right = constant(binary.right);
+        if (left.isEmpty() || right.isEmpty()) {
+            return Optional.empty();
+        }
+        Constant l = left.get();
+        Constant r = right.get();
+        if (l.isString() || r.isString()) {
+            if (binary.operator.type != TokenType.PLUS) {
+                throw new RuntimeException("Type error: operator " + binary.operator.value + " is not defined for String at "
+                        + position(binary));
+            }
+            if (!l.isString() || !r.isString()) {
+                Node part = l.isString() ? binary.right : binary.left;
+                throw new RuntimeException("Type error: cannot concatenate a non String value at " + position(part));
+            }
+            return Optional.of(new Constant(true, 0, l.string() + r.string()));
+        }
+        long a = l.number();
+        long b = r.number();
+        Long value = switch (binary.operator.type) {
+            case PLUS -> a + b;
+            case DASH -> a - b;
+            case MULTIPLY -> a * b;
+            // leave division by zero to the target
+            case SLASH -> b == 0 ? null : a / b;
+            case AND -> a != 0 && b != 0 ? 1L : 0L;
+            case OR -> a | b;
+            case EQUALS -> a == b ? 1L : 0L;
+            case NOT_EQUALS -> a != b ? 1L : 0L;
+            case LESS -> a < b ? 1L : 0L;
+            case LESS_EQUALS -> a <= b ? 1L : 0L;
+            case GREATER -> a > b ? 1L : 0L;
+            case GREATER_EQUALS -> a >= b ? 1L : 0L;
+            default -> null;
+        };
+        return value == null ? Optional.empty() : Optional.of(new Constant(false, value, null));
+    }
+
+    private boolean isStringExpression(Node node) {
+        Boolean known = types.get(node);
+        if (known == null) {
+            known = typeOf(node);
+            types.put(node, known);
+        }
+        return known;
+    }
+
+    private boolean typeOf(Node node) {
+        Optional<Constant> folded = constant(node);
+        if (folded.isPresent()) {
+            return folded.get().isString();
+        }
+        if (node instanceof IdentifierNode identifier) {
+            SymbolTable.Symbol symbol = symbolTable.lookup(identifier.token.value);
+            return symbol != null && symbol.getType().equals("String");
+        }
+        if (node instanceof binaryOperatorNode binary) {
+            boolean left = isStringExpression(binary.left);
+            boolean right = isStringExpression(binary.right);
+            if ((left || right) && binary.operator.type != TokenType.PLUS) {
+                throw new RuntimeException("Type error: operator " + binary.operator.value + " is not defined for String at "
+                        + position(binary));
+            }
+            return left || right;
+        }
+        return false;
+    }
+
+    // Flattens a + chain and concatenates all parts into one pre-sized builder.
+    private String foldString(Node node) {
+        Optional<Constant> folded = constant(node);
+        if (folded.isPresent()) {
+            return folded.get().string();
+        }
+        List<Node> parts = new ArrayList<>();
+        flattenConcatenation(node, parts);
+        List<String> values = new ArrayList<>(parts.size());
+        int length = 0;
+        for (Node part : parts) {
+            String value;
+            if (part instanceof StringNode string) {
+                value = string.text();
+            } else if (part instanceof IdentifierNode identifier && strings.containsKey(symbolTable.lookup(identifier.token.value))) {
+                value = strings.get(symbolTable.lookup(identifier.token.value));
+            } else {
+                throw new RuntimeException("Type error: cannot concatenate a non String value at " + position(part));
+            }
+            values.add(value);
+            length += value.length();
+        }
+        StringBuilder builder = new StringBuilder(length);
+        for (String value : values) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    private void flattenConcatenation(Node node, List<Node> parts) {
+        if (node instanceof binaryOperatorNode binary && binary.operator.type == TokenType.PLUS) {
+            flattenConcatenation(binary.left, parts);
+            flattenConcatenation(binary.right, parts);
+        } else {
+            parts.add(node);
+        }
+    }
+
+    private String position(Node node) {
+        int offset = node.getOffset();
+        return lineIndex.describe(offset != NodeInterner.NO_OFFSET ? offset : statementOffset);
+    }
+
+    private String newLabel(String kind) {
+        return "L" + kind + labels++;
+    }
+
+    public void writeAssembly(List<Instruction> instructions, Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            int frame = (slots * 8 + 15) & ~15;
+            writer.write(".global _start\n");
+            writer.write(".align 2\n");
+            writer.write("_start:\n");
+            if (frame > 0) {
+                writer.write(String.format("    sub sp, sp, #%d\n", frame));
+            }
+            for (Instruction instruction : instructions) {
+                writeInstruction(writer, instruction);
+            }
+            if (instrumentPath != null) {
+                writer.write(".data\n");
+                writer.write(".p2align 3\n");
+                writer.write("Lprofile:\n");
+                writer.write("    .ascii \"FGPF\"\n");
+                writer.write(String.format("    .long %d\n", counterKeys.size()));
+                for (long key : counterKeys) {
+                    writer.write(String.format("    .quad %d, 0\n", key));
+                }
+            }
+            if (pool.count() > 0) {
+                writer.write(".section __TEXT,__const\n");
+                writer.write(".p2align 3\n");
+                for (int i = 0; i < pool.count(); i++) {
+                    byte[] bytes = pool.get(i);
+                    writer.write(StringPool.label(i) + ":\n");
+                    writer.write(String.format("    .quad %d\n", bytes.length));
+                    writer.write("    .ascii \"" + escape(bytes) + "\"\n");
+                    writer.write("    .p2align 3\n");
+                }
+            }
+        }
+    }
+
+    private void writeInstruction(BufferedWriter writer, Instruction in) throws IOException {
+        switch (in.opcode) {
+            case LABEL -> writer.write(in.label + ":\n");
+            case MOVI -> writeImmediate(writer, reg(in.rd), in.imm);
+            case ADDR -> {
+                writer.write(String.format("    adrp %s, %s@PAGE\n", reg(in.rd), StringPool.label((int) in.imm)));
+                writer.write(String.format("    add %s, %s, %s@PAGEOFF\n", reg(in.rd), reg(in.rd), StringPool.label((int) in.imm)));
+            }
+            case MOV -> writer.write(String.format("    mov %s, %s\n", reg(in.rd), reg(in.rn)));
+            case LOAD -> writer.write(String.format("    ldr %s, [sp, #%d]\n", reg(in.rd), in.imm * 8));
+            case STORE -> writer.write(String.format("    str %s, [sp, #%d]\n", reg(in.rd), in.imm * 8));
+            case ADD -> writer.write(String.format("    add %s, %s, %s\n", reg(in.rd), reg(in.rn), reg(in.rm)));
+            case SUB -> writer.write(String.format("    sub %s, %s, %s\n", reg(in.rd), reg(in.rn), reg(in.rm)));
+            case MUL -> writer.write(String.format("    mul %s, %s, %s\n", reg(in.rd), reg(in.rn), reg(in.rm)));
+            case DIV -> writer.write(String.format("    sdiv %s, %s, %s\n", reg(in.rd), reg(in.rn), reg(in.rm)));
+            case LSL -> writer.write(String.format("    lsl %s, %s, #%d\n", reg(in.rd), reg(in.rn), in.imm));
+            case AND -> writer.write(String.format("    and %s, %s, %s\n", reg(in.rd), reg(in.rn), reg(in.rm)));
+            case OR -> writer.write(String.format("    orr %s, %s, %s\n", reg(in.rd), reg(in.rn), reg(in.rm)));
+            case SET -> {
+                writer.write(String.format("    cmp %s, %s\n", reg(in.rn), reg(in.rm)));
+                writer.write(String.format("    cset %s, %s\n", reg(in.rd), condition(in.cond)));
+            }
+            case CBZ -> writer.write(String.format("    cbz %s, %s\n", reg(in.rd), in.label));
+            case CBNZ -> writer.write(String.format("    cbnz %s, %s\n", reg(in.rd), in.label));
+            case COUNT -> {
+                // x16/x17 are the intra procedure scratch registers
+                int offset = Profile.countOffset((int) in.imm);
+                writer.write("    adrp x16, Lprofile@PAGE\n");
+                writer.write("    add x16, x16, Lprofile@PAGEOFF\n");
+                writer.write(String.format("    ldr x17, [x16, #%d]\n", offset));
+                writer.write("    add x17, x17, #1\n");
+                writer.write(String.format("    str x17, [x16, #%d]\n", offset));
+            }
+            case DUMP -> {
+                // fd = open(path, O_WRONLY | O_CREAT | O_TRUNC, 0644) ; write(fd, Lprofile, size) ; close(fd)
+                String path = StringPool.label((int) in.imm);
+                writer.write(String.format("    adrp x0, %s@PAGE\n", path));
+                writer.write(String.format("    add x0, x0, %s@PAGEOFF\n", path));
+                writer.write("    add x0, x0, #8\n");
+                writer.write("    mov x1, #0x601\n");
+                writer.write("    mov x2, #420\n");
+                writer.write("    mov x16, #5\n");
+                writer.write("    svc #0\n");
+                writer.write("    mov x17, x0\n");
+                writer.write("    adrp x1, Lprofile@PAGE\n");
+                writer.write("    add x1, x1, Lprofile@PAGEOFF\n");
+                writeImmediate(writer, "x2", Profile.HEADER_SIZE + (long) counterKeys.size() * Profile.ENTRY_SIZE);
+                writer.write("    mov x16, #4\n");
+                writer.write("    svc #0\n");
+                writer.write("    mov x0, x17\n");
+                writer.write("    mov x16, #6\n");
+                writer.write("    svc #0\n");
+            }
+            case B -> writer.write(String.format("    b %s\n", in.label));
+            case EXIT -> {
+                writer.write(String.format("    mov x0, %s\n", reg(in.rd)));
+                writer.write("    mov x16, #1\n");
+                writer.write("    svc #0\n");
+            }
+        }
+    }
+
+    private void writeImmediate(BufferedWriter writer, String register, long value) throws IOException {
+        if (value >= 0 && value <= 0xFFFF) {
+            writer.write(String.format("    mov %s, #%d\n", register, value));
+            return;
+        }
+        writer.write(String.format("    movz %s, #%d\n", register, value & 0xFFFF));
+        for (int shift = 16; shift < 64; shift += 16) {
+            long chunk = (value >>> shift) & 0xFFFF;
+            if (chunk != 0) {
+                writer.write(String.format("    movk %s, #%d, lsl #%d\n", register, chunk, shift));
+            }
+        }
+    }
+
+    private static String escape(byte[] bytes) {
+        StringBuilder escaped = new StringBuilder(bytes.length);
+        for (byte b : bytes) {
+            int c = b & 0xFF;
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append((char) c);
+            } else if (c >= 0x20 && c < 0x7F) {
+                escaped.append((char) c);
+            } else {
+                escaped.append(String.format("\\%03o", c));
+            }
+        }
+        return escaped.toString();
+    }
+
+    // scratch registers x9 - x15 are free to clobber
+    private static String reg(int register) {
+        return "x" + (9 + register);
+    }
+
+    private static String condition(TokenType cond) {
+        return switch (cond) {
+            case EQUALS -> "eq";
+            case NOT_EQUALS -> "ne";
+            case LESS -> "lt";
+            case LESS_EQUALS -> "le";
+            case GREATER -> "gt";
+            case GREATER_EQUALS -> "ge";
+            default -> throw new RuntimeException("Code generation error: not a condition " + cond);
+        };
+    }
+}
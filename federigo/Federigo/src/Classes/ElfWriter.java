@@ -0,0 +1,146 @@
+package Classes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Writes a static x86-64 Linux ELF executable around already encoded machine
+// code, so no external assembler or linker is needed. The file is laid out
+// up front and written from one preallocated buffer:
+//
+//   ELF header | program headers | .text | .rodata | .data | .symtab | .strtab | .shstrtab | section headers
+//
+// The headers, .text and .rodata are loaded read + execute. .data (profile
+// counters, only present in instrumented builds) gets its own writable
+// segment DATA_DISTANCE bytes further on in memory so it never shares a page
+// with code. .rodata and .data start at the next 8 byte boundary, which is
+// what X86Encoder expects. Everything is position relative so
+// the executable needs no relocations.
+public class ElfWriter {
+    public static final int DATA_DISTANCE = 0x100000;
+    private static final long BASE_ADDRESS = 0x400000;
+    private static final int ELF_HEADER_SIZE = 64;
+    private static final int PROGRAM_HEADER_SIZE = 56;
+    private static final int SECTION_HEADER_SIZE = 64;
+    private static final int SYMBOL_SIZE = 24;
+    private static final int SECTION_COUNT = 7; // null .text .rodata .data .symtab .strtab .shstrtab
+
+    private static final byte[] strtab = "\0_start\0".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] shstrtab = "\0.text\0.rodata\0.data\0.symtab\0.strtab\0.shstrtab\0".getBytes(StandardCharsets.US_ASCII);
+
+    public static void write(byte[] text, byte[] rodata, byte[] data, Path path) throws IOException {
+        int programHeaders = data.length > 0 ? 2 : 1;
+        int textOffset = ELF_HEADER_SIZE + programHeaders * PROGRAM_HEADER_SIZE;
+        int rodataOffset = align(textOffset + text.length, 8);
+        int dataOffset = align(rodataOffset + rodata.length, 8);
+        long dataAddress = BASE_ADDRESS + DATA_DISTANCE + dataOffset;
+        int symtabOffset = align(dataOffset + data.length, 8);
+        int symtabSize = 2 * SYMBOL_SIZE;
+        int strtabOffset = symtabOffset + symtabSize;
+        int shstrtabOffset = strtabOffset + strtab.length;
+        int sectionHeaderOffset = align(shstrtabOffset + shstrtab.length, 8);
+        int fileSize = sectionHeaderOffset + SECTION_COUNT * SECTION_HEADER_SIZE;
+        long entry = BASE_ADDRESS + textOffset;
+
+        ByteBuffer buffer = ByteBuffer.allocate(fileSize).order(ByteOrder.LITTLE_ENDIAN);
+
+        // ELF header
+        buffer.put(new byte[] {0x7F, 'E', 'L', 'F', 2, 1, 1, 0}); // 64 bit, little endian, version 1, SysV
+        buffer.putLong(0);
+        buffer.putShort((short) 2);      // ET_EXEC
+        buffer.putShort((short) 0x3E);   // EM_X86_64
+        buffer.putInt(1);
+        buffer.putLong(entry);
+        buffer.putLong(ELF_HEADER_SIZE);
+        buffer.putLong(sectionHeaderOffset);
+        buffer.putInt(0);
+        buffer.putShort((short) ELF_HEADER_SIZE);
+        buffer.putShort((short) PROGRAM_HEADER_SIZE);
+        buffer.putShort((short) programHeaders);
+        buffer.putShort((short) SECTION_HEADER_SIZE);
+        buffer.putShort((short) SECTION_COUNT);
+        buffer.putShort((short) 6);      // .shstrtab
+
+        // PT_LOAD covering the headers, .text and .rodata, read + execute
+        buffer.putInt(1);
+        buffer.putInt(5);
+        buffer.putLong(0);
+        buffer.putLong(BASE_ADDRESS);
+        buffer.putLong(BASE_ADDRESS);
+        buffer.putLong(rodataOffset + rodata.length);
+        buffer.putLong(rodataOffset + rodata.length);
+        buffer.putLong(0x1000);
+
+        if (data.length > 0) {
+            // PT_LOAD for .data, read + write
+            buffer.putInt(1);
+            buffer.putInt(6);
+            buffer.putLong(dataOffset);
+            buffer.putLong(dataAddress);
+            buffer.putLong(dataAddress);
+            buffer.putLong(data.length);
+            buffer.putLong(data.length);
+            buffer.putLong(0x1000);
+        }
+
+        buffer.put(text);
+        buffer.position(rodataOffset);
+        buffer.put(rodata);
+        buffer.position(dataOffset);
+        buffer.put(data);
+
+        // symbols: null, _start
+        buffer.position(symtabOffset);
+        buffer.put(new byte[SYMBOL_SIZE]);
+        buffer.putInt(1);                // name "_start"
+        buffer.put((byte) 0x12);         // STB_GLOBAL, STT_FUNC
+        buffer.put((byte) 0);
+        buffer.putShort((short) 1);      // .text
+        buffer.putLong(entry);
+        buffer.putLong(text.length);
+
+        buffer.put(strtab);
+        buffer.put(shstrtab);
+
+        buffer.position(sectionHeaderOffset);
+        buffer.put(new byte[SECTION_HEADER_SIZE]);
+        // name, type, flags, addr, offset, size, link, info, align, entsize
+        putSection(buffer, 1, 1, 6, entry, textOffset, text.length, 0, 0, 8, 0);           // .text PROGBITS AX
+        putSection(buffer, 7, 1, 2, BASE_ADDRESS + rodataOffset, rodataOffset, rodata.length, 0, 0, 8, 0); // .rodata A
+        putSection(buffer, 15, 1, 3, dataAddress, dataOffset, data.length, 0, 0, 8, 0);      // .data WA
+        putSection(buffer, 21, 2, 0, 0, symtabOffset, symtabSize, 5, 1, 8, SYMBOL_SIZE);   // .symtab
+        putSection(buffer, 29, 3, 0, 0, strtabOffset, strtab.length, 0, 0, 1, 0);          // .strtab
+        putSection(buffer, 37, 3, 0, 0, shstrtabOffset, shstrtab.length, 0, 0, 1, 0);      // .shstrtab
+
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        path.toFile().setExecutable(true);
+    }
+
+    private static void putSection(ByteBuffer buffer, int name, int type, long flags, long address, long offset,
+                                   long size, int link, int info, long align, long entrySize) {
+        buffer.putInt(name);
+        buffer.putInt(type);
+        buffer.putLong(flags);
+        buffer.putLong(address);
+        buffer.putLong(offset);
+        buffer.putLong(size);
+        buffer.putInt(link);
+        buffer.putInt(info);
+        buffer.putLong(align);
+        buffer.putLong(entrySize);
+    }
+
+    private static int align(int value, int alignment) {
+        return (value + alignment - 1) & -alignment;
+    }
+}
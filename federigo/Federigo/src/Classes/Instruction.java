@@ -0,0 +1,129 @@
+package Classes;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// One instruction of the backend IR. Registers are virtual scratch numbers
+// (0, 1, 2 ...) and slots are 8-byte stack slots, the target printer decides
+// what physical register / address they become.
+@AllArgsConstructor
+@Getter
+public class Instruction {
+    public enum Opcode {
+        LABEL,  // label:
+        MOVI,   // rd = imm
+        ADDR,   // rd = address of string pool entry imm
+        MOV,    // rd = rn
+        LOAD,   // rd = slot[imm]
+        STORE,  // slot[imm] = rd
+        ADD,    // rd = rn + rm
+        SUB,    // rd = rn - rm
+        MUL,    // rd = rn * rm
+        DIV,    // rd = rn / rm
+        LSL,    // rd = rn << imm
+        AND,    // rd = rn & rm
+        OR,     // rd = rn | rm
+        SET,    // rd = (rn <cond> rm) ? 1 : 0
+        CBZ,    // if rd == 0 goto label
+        CBNZ,   // if rd != 0 goto label
+        B,      // goto label
+        COUNT,  // profile counter[imm]++
+        DUMP,   // write the profile counters to the file named by string pool entry imm
+        EXIT    // exit(rd)
+    }
+
+    public final Opcode opcode;
+    public final int rd;
+    public final int rn;
+    public final int rm;
+    public final long imm;
+    public final String label;
+    public final TokenType cond;
+
+    public static Instruction label(String label) {
+        return new Instruction(Opcode.LABEL, -1, -1, -1, 0, label, null);
+    }
+
+    public static Instruction movi(int rd, long imm) {
+        return new Instruction(Opcode.MOVI, rd, -1, -1, imm, null, null);
+    }
+
+    public static Instruction addr(int rd, int index) {
+        return new Instruction(Opcode.ADDR, rd, -1, -1, index, null, null);
+    }
+
+    public static Instruction mov(int rd, int rn) {
+        return new Instruction(Opcode.MOV, rd, rn, -1, 0, null, null);
+    }
+
+    public static Instruction load(int rd, int slot) {
+        return new Instruction(Opcode.LOAD, rd, -1, -1, slot, null, null);
+    }
+
+    public static Instruction store(int rd, int slot) {
+        return new Instruction(Opcode.STORE, rd, -1, -1, slot, null, null);
+    }
+
+    public static Instruction binary(Opcode opcode, int rd, int rn, int rm) {
+        return new Instruction(opcode, rd, rn, rm, 0, null, null);
+    }
+
+    public static Instruction lsl(int rd, int rn, long shift) {
+        return new Instruction(Opcode.LSL, rd, rn, -1, shift, null, null);
+    }
+
+    public static Instruction set(TokenType cond, int rd, int rn, int rm) {
+        return new Instruction(Opcode.SET, rd, rn, rm, 0, null, cond);
+    }
+
+    public static Instruction cbz(int rd, String label) {
+        return new Instruction(Opcode.CBZ, rd, -1, -1, 0, label, null);
+    }
+
+    public static Instruction cbnz(int rd, String label) {
+        return new Instruction(Opcode.CBNZ, rd, -1, -1, 0, label, null);
+    }
+
+    public static Instruction count(int counter) {
+        return new Instruction(Opcode.COUNT, -1, -1, -1, counter, null, null);
+    }
+
+    public static Instruction dump(int path) {
+        return new Instruction(Opcode.DUMP, -1, -1, -1, path, null, null);
+    }
+
+    public static Instruction branch(String label) {
+        return new Instruction(Opcode.B, -1, -1, -1, 0, label, null);
+    }
+
+    public static Instruction exit(int rd) {
+        return new Instruction(Opcode.EXIT, rd, -1, -1, 0, null, null);
+    }
+
+    // True if this instruction reads register r.
+    public boolean reads(int r) {
+        return switch (opcode) {
+            case MOV, LSL -> rn == r;
+            case ADD, SUB, MUL, DIV, AND, OR, SET -> rn == r || rm == r;
+            case STORE, CBZ, CBNZ, EXIT -> rd == r;
+            default -> false;
+        };
+    }
+
+    // True if this instruction overwrites register r.
+    public boolean writes(int r) {
+        return switch (opcode) {
+            case MOVI, ADDR, MOV, LOAD, ADD, SUB, MUL, DIV, LSL, AND, OR, SET -> rd == r;
+            default -> false;
+        };
+    }
+
+    public boolean isJump() {
+        return opcode == Opcode.B || opcode == Opcode.CBZ || opcode == Opcode.CBNZ;
+    }
+
+    // DUMP counts too since it clobbers registers behind the IR's back
+    public boolean isControlFlow() {
+        return opcode == Opcode.LABEL || isJump() || opcode == Opcode.EXIT || opcode == Opcode.DUMP;
+    }
+}
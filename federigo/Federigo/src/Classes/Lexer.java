@@ -39,12 +39,13 @@ public class Lexer {
     private final List<RegexPattern> patterns = new ArrayList<>();
     private final List<TokenType.Token> tokens = new ArrayList<>();
     private final String source;
+    private final LineIndex lineIndex;
     private int pos = 0;
-    private int line = 1;
 
 
     public Lexer(String source) {
         this.source = source;
+        this.lineIndex = new LineIndex(source);
         patterns.add(new RegexPattern(Pattern.compile("\\s+"), this::skipHandler));
         patterns.add(new RegexPattern(Pattern.compile("//.*"), this::commentHandler));
         patterns.add(new RegexPattern(Pattern.compile("\"[^\"]*\""), this::stringHandler));
@@ -97,11 +98,11 @@ public class Lexer {
                 }
             }
             if (!matched){
-                throw new RuntimeException("Lexer error: unrecognized token near '" + remainder() + "'");
+                throw new RuntimeException("Lexer error: unrecognized token near '" + remainder() + "' at " + lineIndex.describe(pos));
             }
 
         }
-        tokens.add(createNewToken(TokenType.EOF, "EOF"));
+        tokens.add(createNewToken(TokenType.EOF, "EOF", pos));
         return tokens;
     }
 
@@ -134,27 +135,27 @@ public class Lexer {
 
     private RegexHandler defaultHandler(TokenType kind, String value) {
         return (lexer, matcher) -> {
+            lexer.push(createNewToken(kind, value, lexer.pos));
             lexer.advanceN(value.length());
-            lexer.push(createNewToken(kind, value));
         };
     }
 
     private void stringHandler(Lexer lexer, Matcher matcher) {
         String stringLiteral = matcher.group();
-        lexer.push(createNewToken(TokenType.STRING, stringLiteral));
+        lexer.push(createNewToken(TokenType.STRING, stringLiteral, lexer.pos));
         lexer.advanceN(stringLiteral.length());
     }
 
     private void numberHandler(Lexer lexer, Matcher matcher) {
         String number = matcher.group();
-        lexer.push(createNewToken(TokenType.NUMBER, number));
+        lexer.push(createNewToken(TokenType.NUMBER, number, lexer.pos));
         lexer.advanceN(number.length());
     }
 
     private void symbolHandler(Lexer lexer, Matcher matcher) {
         String symbol = matcher.group();
         TokenType kind = reservedWords.getOrDefault(symbol, TokenType.IDENTIFIER);
-        lexer.push(new TokenType.Token(kind, symbol));
+        lexer.push(new TokenType.Token(kind, symbol, lexer.pos));
         lexer.advanceN(symbol.length());
     }
 
@@ -164,7 +165,6 @@ public class Lexer {
 
     private void commentHandler(Lexer lexer, Matcher matcher) {
         lexer.advanceN(matcher.end());
-        line++;
     }
 
 
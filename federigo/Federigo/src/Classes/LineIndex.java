@@ -0,0 +1,42 @@
+package Classes;
+
+import java.util.Arrays;
+
+// Sorted start offsets of every line in a source file. Tokens and nodes only
+// carry an int offset, line and column are looked up here when an error
+// message actually needs them.
+public class LineIndex {
+    private int[] lineStarts = new int[16];
+    private int lineCount = 0;
+
+    public LineIndex(String source) {
+        addLineStart(0);
+        for (int i = 0; i < source.length(); i++) {
+            if (source.charAt(i) == '\n') {
+                addLineStart(i + 1);
+            }
+        }
+    }
+
+    private void addLineStart(int offset) {
+        if (lineCount == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+        }
+        lineStarts[lineCount++] = offset;
+    }
+
+    // 1 based line of the offset
+    public int line(int offset) {
+        int found = Arrays.binarySearch(lineStarts, 0, lineCount, Math.max(offset, 0));
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    // 1 based column of the offset
+    public int column(int offset) {
+        return Math.max(offset, 0) - lineStarts[line(offset) - 1] + 1;
+    }
+
+    public String describe(int offset) {
+        return "line " + line(offset) + ", column " + column(offset);
+    }
+}
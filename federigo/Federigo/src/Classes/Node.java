@@ -2,19 +2,27 @@ package Classes;
 
 
 import lombok.AllArgsConstructor;
+import lombok.Getter;
 
 import java.util.List;
 
 public abstract class Node {
     public abstract void print(String indent);
+
+    // source offset of the node, resolve it with LineIndex
+    public abstract int getOffset();
 }
 
 @AllArgsConstructor
 class binaryOperatorNode extends Node {
-    private final TokenType.Token operator;
-    private final Node left;
-    private final Node right;
+    public final TokenType.Token operator;
+    public final Node left;
+    public final Node right;
 
+    @Override
+    public int getOffset() {
+        return operator.offset;
+    }
 
     @Override
     public void print(String indent) {
@@ -29,7 +37,12 @@ class binaryOperatorNode extends Node {
 }
 @AllArgsConstructor
 class numberNode extends Node {
-    private final TokenType.Token token;
+    public final TokenType.Token token;
+
+    @Override
+    public int getOffset() {
+        return token.offset;
+    }
 
     @Override
     public void print(String indent) {
@@ -37,6 +50,26 @@ class numberNode extends Node {
     }
 }
 
+@AllArgsConstructor
+class StringNode extends Node {
+    public final TokenType.Token token;
+
+    @Override
+    public int getOffset() {
+        return token.offset;
+    }
+
+    // literal without the surrounding quotes
+    public String text() {
+        return token.value.substring(1, token.value.length() - 1);
+    }
+
+    @Override
+    public void print(String indent) {
+        System.out.println(indent + "StringNode(" + token.value + ")");
+    }
+}
+
 @AllArgsConstructor
 class AssignmentNode extends Node {
     public final Boolean varType;
@@ -44,6 +77,10 @@ class AssignmentNode extends Node {
     public final TokenType.Token type;
     public final Node expression;
 
+    @Override
+    public int getOffset() {
+        return identifier.offset;
+    }
 
     @Override
     public void print(String indent) {
@@ -58,6 +95,11 @@ class AssignmentNode extends Node {
 class IdentifierNode extends Node {
     public final TokenType.Token token;
 
+    @Override
+    public int getOffset() {
+        return token.offset;
+    }
+
     @Override
     public void print(String indent) {
         System.out.println(indent + "IdentifierNode(" + token.value + ")");
@@ -65,10 +107,12 @@ class IdentifierNode extends Node {
 }
 
 @AllArgsConstructor
+@Getter
 class IfStatementNode extends Node {
     public final Node condition;
     public final Node ifBlock;
     public final Node elseBlock;
+    private final int offset;
 
     public void print(String indent) {
         System.out.println(indent + "IfStatementNode");
@@ -84,8 +128,10 @@ class IfStatementNode extends Node {
 }
 
 @AllArgsConstructor
+@Getter
 class BlockNode extends Node {
     public final List<Node> statements;
+    private final int offset;
 
     @Override
     public void print(String indent) {
@@ -0,0 +1,47 @@
+package Classes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+// Hash consing for expression nodes. Nodes are built bottom up, so children
+// are already canonical and a node is identified by its token type, token
+// text and the identity of its children. Structurally equal subtrees then
+// come out as the very same object, which also makes per node caches in later
+// passes work per distinct subtree. A shared node stands for every copy, so
+// it carries no position of its own: its tokens have offset NO_OFFSET and
+// diagnostics fall back to the enclosing statement.
+//
+// The table is a bounded LRU: once it is full the least recently used entries
+// are dropped, later copies of those just stop being shared.
+public class NodeInterner {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final int NO_OFFSET = -1;
+
+    private record Key(TokenType type, String value, Node left, Node right) {}
+
+    private final Map<Key, Node> table;
+
+    public NodeInterner() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public NodeInterner(int capacity) {
+        this.table = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Node> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    // factory gets a copy of token without a position
+    public Node intern(TokenType.Token token, Node left, Node right, Function<TokenType.Token, Node> factory) {
+        return table.computeIfAbsent(new Key(token.type, token.value, left, right),
+                key -> factory.apply(new TokenType.Token(token.type, token.value, NO_OFFSET)));
+    }
+
+    public int size() {
+        return table.size();
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Setter;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 import static Classes.TokenType.*;
 
@@ -16,6 +17,9 @@ public class Parser {
 
     List<Token> tokenList;
     int indx = 0;
+    LineIndex lineIndex;
+    // optional, when set structurally equal expressions share one node
+    NodeInterner interner;
 
 
     private Token getCurrentToken() {
@@ -23,7 +27,7 @@ public class Parser {
             return tokenList.get(indx);
         }
         else  {
-            return new Token(EOF, "");
+            return new Token(EOF, "", tokenList.isEmpty() ? 0 : tokenList.get(tokenList.size() - 1).offset);
         }
     }
 
@@ -36,24 +40,28 @@ public class Parser {
             advanceToNextToken();
         }
         else {
-            throw new RuntimeException("Unexpected token: " + getCurrentToken().type);
+            throw new RuntimeException("Unexpected token: " + getCurrentToken().type + " at " + position(getCurrentToken()));
         }
     }
 
+    private String position(Token token) {
+        return lineIndex.describe(token.offset);
+    }
+
 
     public Node parseProgram() {
         List<Node> statements = new ArrayList<>();
         while (getCurrentToken().type != TokenType.EOF) {
             statements.add(parseStatement());  // Parse each statement and add to the list
         }
-        return new BlockNode(statements);  // Return a BlockNode containing all statements
+        return new BlockNode(statements, 0);  // Return a BlockNode containing all statements
     }
 
     public Node parseDeclaration() {
         Token keyword = getCurrentToken();
         boolean isMutable;
         if (keyword.type != VAR && keyword.type != LET) {
-            throw new RuntimeException("Invalid Variable Declaration");
+            throw new RuntimeException("Invalid Variable Declaration at " + position(keyword));
         }
         isMutable = keyword.type == VAR;
         advanceToNextToken();
@@ -75,7 +83,7 @@ public class Parser {
             Token operator = getCurrentToken();
             advanceToNextToken();
             Node rightNode = parseTerm();
-            node = new binaryOperatorNode(operator, node, rightNode);
+            node = newBinaryOperator(operator, node, rightNode);
         }
         return node;
     }
@@ -86,7 +94,7 @@ public class Parser {
             Token operator = getCurrentToken();
             advanceToNextToken();
             Node rightNode = parseFactor();
-            node = new binaryOperatorNode(operator, node, rightNode);
+            node = newBinaryOperator(operator, node, rightNode);
         }
         return node;
     }
@@ -100,16 +108,20 @@ public class Parser {
            return node;
         } else if (currToken.type == NUMBER) {
             advanceToNextToken();
-            return new numberNode(currToken);
+            return newLeaf(currToken, numberNode::new);
+        } else if (currToken.type == STRING) {
+            advanceToNextToken();
+            return newLeaf(currToken, StringNode::new);
         } else if (currToken.type == IDENTIFIER) {
             advanceToNextToken();
-            return new IdentifierNode(currToken);
+            return newLeaf(currToken, IdentifierNode::new);
         } else {
-            throw new RuntimeException("in parse factor error");
+            throw new RuntimeException("in parse factor error at " + position(currToken));
         }
     }
 
     public Node parseIfStatement() {
+         Token keyword = getCurrentToken();
          match(IF);
          match(OPEN_PAREN);
          Node condition = parseCondition();
@@ -120,11 +132,12 @@ public class Parser {
              match(ELSE);
              elseBlock = parseBlock();
          }
-        return new IfStatementNode(condition, ifBlock, elseBlock);
+        return new IfStatementNode(condition, ifBlock, elseBlock, keyword.offset);
     }
 
 
     public Node parseBlock() {
+        Token open = getCurrentToken();
         match(OPEN_CURLY);
 
         List<Node> statements = new ArrayList<>();
@@ -134,7 +147,7 @@ public class Parser {
         }
 
         match(CLOSE_CURLY);
-        return new BlockNode(statements);
+        return new BlockNode(statements, open.offset);
     }
 
 
@@ -145,7 +158,7 @@ public class Parser {
         else if (getCurrentToken().type == VAR || getCurrentToken().type == LET) {
             return parseDeclaration();
         } else {
-            throw new RuntimeException("Syntax Error: Unexpected Token at" + getCurrentToken().value);
+            throw new RuntimeException("Syntax Error: Unexpected Token " + getCurrentToken().value + " at " + position(getCurrentToken()));
         }
     }
 
@@ -157,7 +170,7 @@ public class Parser {
             Token operator = getCurrentToken();
             advanceToNextToken();
             Node right = parseExpression();
-            return new binaryOperatorNode(operator, left, right);
+            return newBinaryOperator(operator, left, right);
         }
 
         while (isLogicalOperator(getCurrentToken().type)){
@@ -165,12 +178,26 @@ public class Parser {
             advanceToNextToken();
 
             Node right = parseCondition();
-            left = new binaryOperatorNode(operator, left ,right);
+            left = newBinaryOperator(operator, left, right);
         }
 
         return left;
     }
 
+    private Node newBinaryOperator(Token operator, Node left, Node right) {
+        if (interner == null) {
+            return new binaryOperatorNode(operator, left, right);
+        }
+        return interner.intern(operator, left, right, token -> new binaryOperatorNode(token, left, right));
+    }
+
+    private Node newLeaf(Token token, Function<Token, Node> factory) {
+        if (interner == null) {
+            return factory.apply(token);
+        }
+        return interner.intern(token, null, null, factory);
+    }
+
     private boolean isComparisonOperator(TokenType type) {
         return type == TokenType.EQUALS || type == TokenType.NOT_EQUALS ||
                 type == TokenType.LESS || type == TokenType.GREATER ||
@@ -201,6 +228,7 @@ public class Parser {
          | <factor>
 <factor> ::= "(" <expression> ")"
            | <number>
+           | <string>
            | <identifier>
 <identifier> ::= [a-zA-Z_][a-zA-Z0-9_]*
 <number> ::= [0-9]+
@@ -0,0 +1,253 @@
+package Classes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static Classes.Instruction.Opcode;
+
+// Table driven peephole pass over the Instruction IR. Every rule is tried at
+// every position and the whole table is rerun until nothing changes anymore.
+// Label lookups go through a Labels table built once per pass, so a pass stays
+// linear in the size of the code.
+public class Peephole {
+    private interface Rule {
+        // rewrites code at index i in place, returns true if anything changed
+        boolean apply(List<Instruction> code, int i, Labels labels);
+    }
+
+    // Per pass: how many jumps target each label, and the first instruction
+    // after each label. uses is kept exact by the rules that add or drop jumps.
+    // target is a snapshot. The rules only ever drop a jump that falls through
+    // to its target, retarget a jump along a chain, or drop instructions that
+    // don't follow a label, so a stale target still leads to the same place
+    // or is just a missed rewrite that the next pass picks up.
+    private static final class Labels {
+        final Map<String, Integer> uses = new HashMap<>();
+        final Map<String, Instruction> targets = new HashMap<>();
+
+        Labels(List<Instruction> code) {
+            List<String> pending = new ArrayList<>();
+            for (Instruction in : code) {
+                if (in.opcode == Opcode.LABEL) {
+                    pending.add(in.label);
+                    continue;
+                }
+                for (String label : pending) {
+                    targets.put(label, in);
+                }
+                pending.clear();
+                if (in.isJump()) {
+                    uses.merge(in.label, 1, Integer::sum);
+                }
+            }
+        }
+
+        void addUse(String label) {
+            uses.merge(label, 1, Integer::sum);
+        }
+
+        void dropUse(String label) {
+            uses.merge(label, -1, Integer::sum);
+        }
+
+        boolean isUsed(String label) {
+            return uses.getOrDefault(label, 0) > 0;
+        }
+    }
+
+    private static final List<Rule> rules = List.of(
+            Peephole::selfMove,
+            Peephole::storeThenLoad,
+            Peephole::loadThenLoad,
+            Peephole::multiplyByPowerOfTwo,
+            Peephole::jumpToNext,
+            Peephole::threadJump,
+            Peephole::unreachable,
+            Peephole::unusedLabel
+    );
+
+    public static void optimize(List<Instruction> code) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            Labels labels = new Labels(code);
+            for (int i = 0; i < code.size(); i++) {
+                for (Rule rule : rules) {
+                    if (i < code.size() && rule.apply(code, i, labels)) {
+                        changed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    // Labels don't end up as machine code so they are not counted.
+    public static int countInstructions(List<Instruction> code) {
+        int count = 0;
+        for (Instruction instruction : code) {
+            if (instruction.opcode != Opcode.LABEL) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // mov r, r
+    private static boolean selfMove(List<Instruction> code, int i, Labels labels) {
+        Instruction in = code.get(i);
+        if (in.opcode == Opcode.MOV && in.rd == in.rn) {
+            code.remove(i);
+            return true;
+        }
+        return false;
+    }
+
+    // str r, [s] ; ldr d, [s]  ->  str r, [s] ; mov d, r
+    private static boolean storeThenLoad(List<Instruction> code, int i, Labels labels) {
+        if (i + 1 >= code.size()) {
+            return false;
+        }
+        Instruction store = code.get(i);
+        Instruction load = code.get(i + 1);
+        if (store.opcode == Opcode.STORE && load.opcode == Opcode.LOAD && store.imm == load.imm) {
+            code.set(i + 1, Instruction.mov(load.rd, store.rd));
+            return true;
+        }
+        return false;
+    }
+
+    // ldr r, [s] ; ldr d, [s]  ->  ldr r, [s] ; mov d, r
+    private static boolean loadThenLoad(List<Instruction> code, int i, Labels labels) {
+        if (i + 1 >= code.size()) {
+            return false;
+        }
+        Instruction first = code.get(i);
+        Instruction second = code.get(i + 1);
+        if (first.opcode == Opcode.LOAD && second.opcode == Opcode.LOAD && first.imm == second.imm) {
+            code.set(i + 1, Instruction.mov(second.rd, first.rd));
+            return true;
+        }
+        return false;
+    }
+
+    // mov t, #2^k ; [x] ; mul d, a, t  ->  [x] ; lsl d, a, #k  (t dead afterwards)
+    private static boolean multiplyByPowerOfTwo(List<Instruction> code, int i, Labels labels) {
+        Instruction constant = code.get(i);
+        if (constant.opcode != Opcode.MOVI || constant.imm <= 0 || Long.bitCount(constant.imm) != 1) {
+            return false;
+        }
+        int t = constant.rd;
+        for (int j = i + 1; j < code.size() && j <= i + 2; j++) {
+            Instruction in = code.get(j);
+            if (in.opcode == Opcode.MUL && (in.rn == t) != (in.rm == t)) {
+                int other = in.rn == t ? in.rm : in.rn;
+                if (in.rd != t && !isDeadAfter(code, j + 1, t)) {
+                    return false;
+                }
+                code.set(j, Instruction.lsl(in.rd, other, Long.numberOfTrailingZeros(constant.imm)));
+                code.remove(i);
+                return true;
+            }
+            if (in.isControlFlow() || in.reads(t) || in.writes(t)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // b L ; L:  ->  L:
+    private static boolean jumpToNext(List<Instruction> code, int i, Labels labels) {
+        Instruction jump = code.get(i);
+        if (jump.opcode != Opcode.B) {
+            return false;
+        }
+        for (int j = i + 1; j < code.size() && code.get(j).opcode == Opcode.LABEL; j++) {
+            if (code.get(j).label.equals(jump.label)) {
+                labels.dropUse(jump.label);
+                code.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // b L1 ... L1: b L2  ->  b L2 ... L1: b L2
+    private static boolean threadJump(List<Instruction> code, int i, Labels labels) {
+        Instruction jump = code.get(i);
+        if (!jump.isJump()) {
+            return false;
+        }
+        Set<String> seen = new HashSet<>();
+        String target = jump.label;
+        while (true) {
+            if (!seen.add(target)) {
+                // the chain loops forever, leave it alone
+                return false;
+            }
+            Instruction next = labels.targets.get(target);
+            if (next == null || next.opcode != Opcode.B) {
+                break;
+            }
+            target = next.label;
+        }
+        if (target.equals(jump.label)) {
+            return false;
+        }
+        labels.dropUse(jump.label);
+        labels.addUse(target);
+        code.set(i, switch (jump.opcode) {
+            case CBZ -> Instruction.cbz(jump.rd, target);
+            case CBNZ -> Instruction.cbnz(jump.rd, target);
+            default -> Instruction.branch(target);
+        });
+        return true;
+    }
+
+    // anything between an unconditional jump/exit and the next label never runs
+    private static boolean unreachable(List<Instruction> code, int i, Labels labels) {
+        Opcode opcode = code.get(i).opcode;
+        if (opcode != Opcode.B && opcode != Opcode.EXIT) {
+            return false;
+        }
+        boolean changed = false;
+        while (i + 1 < code.size() && code.get(i + 1).opcode != Opcode.LABEL) {
+            Instruction removed = code.remove(i + 1);
+            if (removed.isJump()) {
+                labels.dropUse(removed.label);
+            }
+            changed = true;
+        }
+        return changed;
+    }
+
+    private static boolean unusedLabel(List<Instruction> code, int i, Labels labels) {
+        Instruction label = code.get(i);
+        if (label.opcode != Opcode.LABEL || labels.isUsed(label.label)) {
+            return false;
+        }
+        code.remove(i);
+        return true;
+    }
+
+    // Conservative: a register is only dead if it is overwritten before any
+    // read, label or jump. Falling off the end counts as dead.
+    private static boolean isDeadAfter(List<Instruction> code, int from, int register) {
+        for (int i = from; i < code.size(); i++) {
+            Instruction in = code.get(i);
+            if (in.reads(register)) {
+                return false;
+            }
+            if (in.writes(register)) {
+                return true;
+            }
+            if (in.isControlFlow()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+package Classes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Execution counts of if arms written by an instrumented program. The file is
+// the program's counter memory dumped as is, little endian:
+//
+//   "FGPF" | u32 entry count | { u64 key | u64 count } ...
+//
+// Keys come from the shape of the if condition and how many ifs with the same
+// shape came before it, so editing unrelated code keeps the entries valid.
+public class Profile {
+    public static final int HEADER_SIZE = 8;
+    public static final int ENTRY_SIZE = 16;
+    private static final byte[] MAGIC = {'F', 'G', 'P', 'F'};
+
+    private final Map<Long, Long> counts = new HashMap<>();
+
+    public static Profile read(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] magic = new byte[MAGIC.length];
+        if (buffer.remaining() >= HEADER_SIZE) {
+            buffer.get(magic);
+        }
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new RuntimeException("Profile error: " + path + " is not a profile file");
+        }
+        int entries = buffer.getInt();
+        if (entries < 0 || buffer.remaining() < (long) entries * ENTRY_SIZE) {
+            throw new RuntimeException("Profile error: " + path + " is truncated");
+        }
+        Profile profile = new Profile();
+        for (int i = 0; i < entries; i++) {
+            profile.counts.put(buffer.getLong(), buffer.getLong());
+        }
+        return profile;
+    }
+
+    // initial counter memory of an instrumented program, all counts zero
+    public static byte[] image(List<Long> keys) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + keys.size() * ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC);
+        buffer.putInt(keys.size());
+        for (long key : keys) {
+            buffer.putLong(key);
+            buffer.putLong(0);
+        }
+        return buffer.array();
+    }
+
+    // byte offset of the count of counter i inside the image
+    public static int countOffset(int counter) {
+        return HEADER_SIZE + counter * ENTRY_SIZE + 8;
+    }
+
+    public boolean contains(long key) {
+        return counts.containsKey(key);
+    }
+
+    public long count(long key) {
+        return counts.getOrDefault(key, 0L);
+    }
+
+    public static long ifKey(Node condition, int occurrence) {
+        return ((long) describe(condition).hashCode() << 16 | (occurrence & 0xFFFF)) << 1;
+    }
+
+    public static long thenKey(long ifKey) {
+        return ifKey;
+    }
+
+    public static long elseKey(long ifKey) {
+        return ifKey | 1;
+    }
+
+    // position independent text of an expression
+    public static String describe(Node node) {
+        if (node instanceof binaryOperatorNode binary) {
+            return "(" + describe(binary.left) + binary.operator.value + describe(binary.right) + ")";
+        } else if (node instanceof numberNode number) {
+            return number.token.value;
+        } else if (node instanceof IdentifierNode identifier) {
+            return identifier.token.value;
+        } else if (node instanceof StringNode string) {
+            return string.token.value;
+        }
+        return node.getClass().getSimpleName();
+    }
+}
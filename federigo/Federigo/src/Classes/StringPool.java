@@ -0,0 +1,66 @@
+package Classes;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Deduplicated string constants, emitted once into read only data. Each entry
+// is laid out as an 8 byte little endian length followed by the UTF-8 bytes,
+// padded to 8. A string value at runtime is the address of its entry.
+public class StringPool {
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final List<byte[]> entries = new ArrayList<>();
+    private final List<Integer> offsets = new ArrayList<>();
+    private int size = 0;
+
+    public int intern(String value) {
+        Integer index = indices.get(value);
+        if (index != null) {
+            return index;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        indices.put(value, entries.size());
+        entries.add(bytes);
+        offsets.add(size);
+        size += 8 + ((bytes.length + 7) & ~7);
+        return entries.size() - 1;
+    }
+
+    // total bytes of the laid out pool
+    public int getSize() {
+        return size;
+    }
+
+    public int count() {
+        return entries.size();
+    }
+
+    public byte[] get(int index) {
+        return entries.get(index);
+    }
+
+    // byte offset of the entry from the start of the pool
+    public int offsetOf(int index) {
+        return offsets.get(index);
+    }
+
+    public static String label(int index) {
+        return "Lstr" + index;
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < entries.size(); i++) {
+            byte[] entry = entries.get(i);
+            int offset = offsets.get(i);
+            long length = entry.length;
+            for (int b = 0; b < 8; b++) {
+                bytes[offset + b] = (byte) (length >>> (8 * b));
+            }
+            System.arraycopy(entry, 0, bytes, offset + 8, entry.length);
+        }
+        return bytes;
+    }
+}
@@ -9,17 +9,35 @@ import java.util.Map;
 
 public class SymbolTable {
     private Map<String, Symbol> table = new HashMap<>();
+    // enclosing scope, lookups fall back to it
+    private final SymbolTable parent;
+
+    public SymbolTable() {
+        this(null);
+    }
+
+    public SymbolTable(SymbolTable parent) {
+        this.parent = parent;
+    }
+
+    public SymbolTable getParent() {
+        return parent;
+    }
 
     public void add(String name, String type, Object value, Boolean isMutable) {
         table.put(name, new Symbol(name, type, value, isMutable));
     }
 
     public Symbol lookup(String name) {
-       return table.get(name);
+       Symbol symbol = table.get(name);
+       if (symbol == null && parent != null) {
+           return parent.lookup(name);
+       }
+       return symbol;
     }
 
     public void update(String name, Object newValue) {
-        Symbol symbol = table.get(name);
+        Symbol symbol = lookup(name);
         if (symbol != null && symbol.isMutable) {
             symbol.setValue(newValue);
         } else {
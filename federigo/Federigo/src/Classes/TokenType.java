@@ -96,6 +96,8 @@ public enum TokenType {
     public static class Token {
         public TokenType type;
         public String value;
+        // character offset into the source, see LineIndex
+        public int offset;
         public static String debug(Token token) {
             TokenType type = token.getType();
             if (type == TokenType.IDENTIFIER || type == TokenType.NUMBER || type == TokenType.STRING) {
@@ -168,8 +170,8 @@ public enum TokenType {
                 default -> String.format("unknown(%s)", kind.name());
             };
         }
-        public static Token createNewToken (TokenType tokenType, String value) {
-            return new Token(tokenType, value);
+        public static Token createNewToken (TokenType tokenType, String value, int offset) {
+            return new Token(tokenType, value, offset);
         }
 
         public Boolean isOneOfMany (TokenType ... expectedTokens) {
@@ -0,0 +1,279 @@
+package Classes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Encodes Instruction IR straight into x86-64 machine code for the ELF
+// backend. Slots live below rbp, jumps are rel32 and patched once every
+// label is known. The string pool is placed right after the code (8 byte
+// aligned) and addressed rip relative, as are the profile counters which
+// ElfWriter maps DATA_DISTANCE further on. rax, rdx and r11 are scratch and
+// never handed out.
+public class X86Encoder {
+    private static final int RAX = 0;
+    private static final int RDX = 2;
+    private static final int RSP = 4;
+    private static final int RBP = 5;
+    private static final int RSI = 6;
+    private static final int RDI = 7;
+    private static final int R11 = 11;
+
+    // virtual register -> x86 register number
+    private static final int[] registers = {3, 1, 6, 7, 8, 9, 10}; // rbx rcx rsi rdi r8 r9 r10
+
+    private byte[] bytes = new byte[256];
+    private int size = 0;
+    private final Map<String, Integer> labels = new HashMap<>();
+    private final List<Fixup> fixups = new ArrayList<>();
+    private final List<PoolFixup> poolFixups = new ArrayList<>();
+    private final List<DataFixup> dataFixups = new ArrayList<>();
+    private int counters = 0;
+
+    private record Fixup(int position, String label) {}
+
+    private record PoolFixup(int position, int index, int addend) {}
+
+    private record DataFixup(int position, int offset) {}
+
+    public byte[] encode(List<Instruction> code, int slots, StringPool pool, int counters) {
+        this.counters = counters;
+        // mov rbp, rsp ; sub rsp, frame
+        emitRegReg(0x89, RSP, RBP);
+        int frame = (slots * 8 + 15) & ~15;
+        if (frame > 0) {
+            emit(rex(0, RSP), 0x81, modrm(3, 5, RSP));
+            emit32(frame);
+        }
+        for (Instruction in : code) {
+            encodeInstruction(in);
+        }
+        for (Fixup fixup : fixups) {
+            Integer target = labels.get(fixup.label());
+            if (target == null) {
+                throw new RuntimeException("Code generation error: unknown label " + fixup.label());
+            }
+            patch32(fixup.position(), target - (fixup.position() + 4));
+        }
+        int poolStart = (size + 7) & ~7;
+        for (PoolFixup fixup : poolFixups) {
+            patch32(fixup.position(), poolStart + pool.offsetOf(fixup.index()) + fixup.addend() - (fixup.position() + 4));
+        }
+        int dataStart = ((poolStart + pool.getSize() + 7) & ~7) + ElfWriter.DATA_DISTANCE;
+        for (DataFixup fixup : dataFixups) {
+            patch32(fixup.position(), dataStart + fixup.offset() - (fixup.position() + 4));
+        }
+        return Arrays.copyOf(bytes, size);
+    }
+
+    private void encodeInstruction(Instruction in) {
+        switch (in.opcode) {
+            case LABEL -> labels.put(in.label, size);
+            case MOVI -> moveImmediate(reg(in.rd), in.imm);
+            case ADDR -> leaPool(reg(in.rd), (int) in.imm, 0);
+            case MOV -> move(reg(in.rd), reg(in.rn));
+            case LOAD -> emitSlot(0x8B, reg(in.rd), (int) in.imm);
+            case STORE -> emitSlot(0x89, reg(in.rd), (int) in.imm);
+            case ADD -> arithmetic(0x01, in, true);
+            case SUB -> arithmetic(0x29, in, false);
+            case AND -> arithmetic(0x21, in, true);
+            case OR -> arithmetic(0x09, in, true);
+            case MUL -> multiply(in);
+            case DIV -> {
+                // rax = rn ; cqo ; idiv rm ; rd = rax
+                move(RAX, reg(in.rn));
+                emit(0x48, 0x99);
+                emit(rex(0, reg(in.rm)), 0xF7, modrm(3, 7, reg(in.rm)));
+                move(reg(in.rd), RAX);
+            }
+            case LSL -> {
+                move(reg(in.rd), reg(in.rn));
+                emit(rex(0, reg(in.rd)), 0xC1, modrm(3, 4, reg(in.rd)), (int) in.imm);
+            }
+            case SET -> {
+                // cmp rn, rm ; setcc al ; movzx eax, al ; rd = rax
+                emitRegReg(0x39, reg(in.rm), reg(in.rn));
+                emit(0x0F, 0x90 + conditionCode(in.cond), 0xC0);
+                emit(0x0F, 0xB6, 0xC0);
+                move(reg(in.rd), RAX);
+            }
+            case CBZ -> {
+                // test rd, rd ; jz label
+                emitRegReg(0x85, reg(in.rd), reg(in.rd));
+                emit(0x0F, 0x84);
+                emitFixup(in.label);
+            }
+            case CBNZ -> {
+                // test rd, rd ; jnz label
+                emitRegReg(0x85, reg(in.rd), reg(in.rd));
+                emit(0x0F, 0x85);
+                emitFixup(in.label);
+            }
+            case COUNT -> {
+                // inc qword [rip + counter]
+                emit(0x48, 0xFF, modrm(0, 0, RBP));
+                dataFixups.add(new DataFixup(size, Profile.countOffset((int) in.imm)));
+                emit32(0);
+            }
+            case DUMP -> {
+                // fd = open(path, O_WRONLY | O_CREAT | O_TRUNC, 0644)
+                leaPool(RDI, (int) in.imm, 8);
+                emit(0xB8 + RSI);
+                emit32(0x241);
+                emit(0xB8 + RDX);
+                emit32(0644);
+                emit(0xB8);
+                emit32(2);
+                emit(0x0F, 0x05);
+                // write(fd, counters, size)
+                move(RDI, RAX);
+                emit(rex(RSI, 0), 0x8D, modrm(0, RSI, RBP));
+                dataFixups.add(new DataFixup(size, 0));
+                emit32(0);
+                emit(0xB8 + RDX);
+                emit32(Profile.HEADER_SIZE + counters * Profile.ENTRY_SIZE);
+                emit(0xB8);
+                emit32(1);
+                emit(0x0F, 0x05);
+                // close(fd), rdi survives the syscall
+                emit(0xB8);
+                emit32(3);
+                emit(0x0F, 0x05);
+            }
+            case B -> {
+                emit(0xE9);
+                emitFixup(in.label);
+            }
+            case EXIT -> {
+                // rdi = rd ; eax = 60 (exit) ; syscall
+                move(RDI, reg(in.rd));
+                emit(0xB8);
+                emit32(60);
+                emit(0x0F, 0x05);
+            }
+        }
+    }
+
+    // rd = rn <op> rm for the two operand x86 forms, op r/m64, r64
+    private void arithmetic(int opcode, Instruction in, boolean commutative) {
+        int rd = reg(in.rd), rn = reg(in.rn), rm = reg(in.rm);
+        if (rd == rm && rd != rn) {
+            if (commutative) {
+                rm = rn;
+            } else {
+                move(R11, rm);
+                rm = R11;
+                move(rd, rn);
+            }
+        } else {
+            move(rd, rn);
+        }
+        emitRegReg(opcode, rm, rd);
+    }
+
+    private void multiply(Instruction in) {
+        int rd = reg(in.rd), rn = reg(in.rn), rm = reg(in.rm);
+        if (rd == rm) {
+            rm = rn;
+        } else {
+            move(rd, rn);
+        }
+        // imul rd, rm
+        emit(rex(rd, rm), 0x0F, 0xAF, modrm(3, rd, rm));
+    }
+
+    // lea to, [rip + pool entry + addend]
+    private void leaPool(int to, int index, int addend) {
+        emit(rex(to, 0), 0x8D, modrm(0, to, RBP));
+        poolFixups.add(new PoolFixup(size, index, addend));
+        emit32(0);
+    }
+
+    private void move(int to, int from) {
+        if (to != from) {
+            emitRegReg(0x89, from, to);
+        }
+    }
+
+    private void moveImmediate(int to, long value) {
+        if (value == (int) value) {
+            // mov r/m64, imm32 (sign extended)
+            emit(rex(0, to), 0xC7, modrm(3, 0, to));
+            emit32((int) value);
+        } else {
+            // movabs r64, imm64
+            emit(rex(0, to), 0xB8 + (to & 7));
+            emit32((int) value);
+            emit32((int) (value >>> 32));
+        }
+    }
+
+    // op [rbp - 8 * (slot + 1)], reg  (or the reverse for loads)
+    private void emitSlot(int opcode, int register, int slot) {
+        int displacement = -8 * (slot + 1);
+        if (displacement >= -128) {
+            emit(rex(register, RBP), opcode, modrm(1, register, RBP), displacement & 0xFF);
+        } else {
+            emit(rex(register, RBP), opcode, modrm(2, register, RBP));
+            emit32(displacement);
+        }
+    }
+
+    private void emitRegReg(int opcode, int reg, int rm) {
+        emit(rex(reg, rm), opcode, modrm(3, reg, rm));
+    }
+
+    private void emitFixup(String label) {
+        fixups.add(new Fixup(size, label));
+        emit32(0);
+    }
+
+    private static int rex(int reg, int rm) {
+        return 0x48 | ((reg & 8) >> 1) | ((rm & 8) >> 3);
+    }
+
+    private static int modrm(int mod, int reg, int rm) {
+        return (mod << 6) | ((reg & 7) << 3) | (rm & 7);
+    }
+
+    private static int reg(int register) {
+        if (register < 0 || register >= registers.length) {
+            throw new RuntimeException("Code generation error: no x86 register for r" + register);
+        }
+        return registers[register];
+    }
+
+    private static int conditionCode(TokenType cond) {
+        return switch (cond) {
+            case EQUALS -> 0x4;
+            case NOT_EQUALS -> 0x5;
+            case LESS -> 0xC;
+            case GREATER_EQUALS -> 0xD;
+            case LESS_EQUALS -> 0xE;
+            case GREATER -> 0xF;
+            default -> throw new RuntimeException("Code generation error: not a condition " + cond);
+        };
+    }
+
+    private void emit(int... values) {
+        for (int value : values) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size++] = (byte) value;
+        }
+    }
+
+    private void emit32(int value) {
+        emit(value, value >> 8, value >> 16, value >> 24);
+    }
+
+    private void patch32(int position, int value) {
+        bytes[position] = (byte) value;
+        bytes[position + 1] = (byte) (value >> 8);
+        bytes[position + 2] = (byte) (value >> 16);
+        bytes[position + 3] = (byte) (value >> 24);
+    }
+}
@@ -17,9 +17,27 @@ import Classes.Parser;
 
 public class Main {
     public static void main(String[] args) {
+        // --instrument=<file>: the compiled program writes a profile to <file> on exit
+        // --profile=<file>: lay out code using a profile written by an instrumented run
+        // --hash-cons: share structurally equal expression subtrees in the parse tree
+        List<String> files = new ArrayList<>();
+        String instrumentPath = null;
+        String profilePath = null;
+        boolean hashCons = false;
+        for (String arg : args) {
+            if (arg.equals("--hash-cons")) {
+                hashCons = true;
+            } else if (arg.startsWith("--instrument=")) {
+                instrumentPath = arg.substring("--instrument=".length());
+            } else if (arg.startsWith("--profile=")) {
+                profilePath = arg.substring("--profile=".length());
+            } else {
+                files.add(arg);
+            }
+        }
         String content;
-        if (args.length > 0) {
-            Path sourceCodePath = Paths.get(args[0]);
+        if (files.size() > 0) {
+            Path sourceCodePath = Paths.get(files.get(0));
             try {
                 content = Files.readString(sourceCodePath);
             } catch (IOException e) {
@@ -31,11 +49,42 @@ public class Main {
         Lexer lexer = new Lexer(content);
         List<TokenType.Token> tokens = lexer.tokenize();
 
-        Parser parser = new Parser(tokens, 0);
+        NodeInterner interner = hashCons ? new NodeInterner() : null;
+        Parser parser = new Parser(tokens, 0, lexer.getLineIndex(), interner);
 
        Node parseTree =  parser.parseProgram();
 
        parseTree.print("");
+       if (interner != null) {
+           System.out.printf("hash-cons: %d distinct expression nodes%n", interner.size());
+       }
+
+       CodeGeneration generator = new CodeGeneration(parseTree, lexer.getLineIndex());
+       generator.setInstrumentation(instrumentPath);
+       if (profilePath != null) {
+           try {
+               generator.setProfile(Profile.read(Paths.get(profilePath)));
+           } catch (IOException e) {
+               throw new RuntimeException(e);
+           }
+       }
+       List<Instruction> code = generator.generate();
+       int before = Peephole.countInstructions(code);
+       Peephole.optimize(code);
+       System.out.printf("peephole: %d -> %d instructions%n", before, Peephole.countInstructions(code));
+       try {
+           if (files.size() > 1) {
+               // second argument: write a linux x86-64 executable directly, no assembler/linker
+               byte[] text = new X86Encoder().encode(code, generator.getSlots(), generator.getPool(),
+                       generator.getCounterKeys().size());
+               byte[] data = generator.isInstrumented() ? Profile.image(generator.getCounterKeys()) : new byte[0];
+               ElfWriter.write(text, generator.getPool().toBytes(), data, Paths.get(files.get(1)));
+           } else {
+               generator.writeAssembly(code, Paths.get("out.s"));
+           }
+       } catch (IOException e) {
+           throw new RuntimeException(e);
+       }
 
 
     }
@@ -0,0 +1,90 @@
+#!/bin/sh
+# Compiles every tests/*.fg with the ELF backend, runs it and checks the exit
+# code against the "// expect: N" line in the file. Other directives:
+#   // instrument         build instrumented, check the profile it writes and
+#                         use it for a second, profile guided build
+#   // profile: <file>    build with the profile of an instrumented run of
+#                         tests/<file>, so layout can be trained on one input
+#   // rodata: <text>     <text> must be in the executable
+#   // error: <text>      compilation must fail with a message containing <text>
+#   // flags: <flags>     extra compiler flags, e.g. --hash-cons
+#
+# usage: tests/run.sh   (LOMBOK=<path to lombok jar> if it isn't in ~/.m2)
+cd "$(dirname "$0")/.." || exit 1
+LOMBOK=${LOMBOK:-$HOME/.m2/repository/org/projectlombok/lombok/1.18.30/lombok-1.18.30.jar}
+work=$(mktemp -d)
+trap 'rm -rf "$work"' EXIT
+
+javac -nowarn -cp "$LOMBOK" -processorpath "$LOMBOK" -d "$work/classes" $(find src -name '*.java') || exit 1
+
+failed=0
+fail() {
+    echo "FAIL $1"
+    failed=$((failed + 1))
+    return 1
+}
+
+compile() {
+    java -cp "$work/classes" Main "$@" "$work/exe" > "$work/log" 2>&1
+}
+
+# check <label> <expected exit code> <compiler arguments...>
+check() {
+    label=$1 expected=$2
+    shift 2
+    if ! compile "$@"; then
+        fail "$label: compile error"
+        sed 's/^/    /' "$work/log" | tail -5
+        return 1
+    fi
+    "$work/exe"
+    actual=$?
+    [ "$actual" -eq "$expected" ] || { fail "$label: exit code $actual, expected $expected"; return 1; }
+    echo "ok   $label"
+}
+
+# train <source>: instrumented build and run, leaves the profile in $work/profile
+train() {
+    rm -f "$work/profile"
+    compile "$1" --instrument="$work/profile" && "$work/exe"
+    [ "$(head -c 4 "$work/profile" 2>/dev/null)" = "FGPF" ]
+}
+
+for test in tests/*.fg; do
+    name=$(basename "$test" .fg)
+    expected=$(sed -n 's|^// expect: *\([0-9]*\).*|\1|p' "$test")
+    error=$(sed -n 's|^// error: *||p' "$test")
+    training=$(sed -n 's|^// profile: *||p' "$test")
+    flags=$(sed -n 's|^// flags: *||p' "$test")
+
+    profile=""
+    if [ -n "$training" ]; then
+        train "tests/$training" || { fail "$name: no profile from $training"; continue; }
+        profile="--profile=$work/profile"
+    fi
+
+    if [ -n "$error" ]; then
+        if compile "$test" $flags $profile; then
+            fail "$name: compiled, expected an error"
+        elif ! grep -qF "$error" "$work/log"; then
+            fail "$name: error doesn't mention \"$error\""
+            sed 's/^/    /' "$work/log" | grep -i error | head -2
+        else
+            echo "ok   $name"
+        fi
+        continue
+    fi
+
+    if grep -q '^// instrument' "$test"; then
+        check "$name (instrumented)" "$expected" "$test" $flags --instrument="$work/profile" || continue
+        [ "$(head -c 4 "$work/profile" 2>/dev/null)" = "FGPF" ] || { fail "$name: no profile written"; continue; }
+        check "$name (profile)" "$expected" "$test" $flags --profile="$work/profile" || continue
+    else
+        check "$name" "$expected" "$test" $flags $profile || continue
+    fi
+    sed -n 's|^// rodata: *||p' "$test" | while read -r text; do
+        grep -aqF "$text" "$work/exe" || { echo "FAIL $name: \"$text\" not in the executable"; exit 1; }
+    done || failed=$((failed + 1))
+done
+
+[ "$failed" -eq 0 ] || { echo "$failed failed"; exit 1; }